@@ -0,0 +1,143 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.util.Arrays;
+
+/**
+ * Interns (xmi) ids into dense int handles so the data that is keyed on them can be stored in plain arrays.
+ * The lookup uses open addressing with linear probing on the handles, the id itself is only stored once (indexed by its handle).
+ * Handles are assigned in order of interning starting at 0 and are never reused.
+ * <p>
+ * Interning is synchronized, lookups are lock free and can run concurrently with interning.
+ * All the arrays are published together in an immutable holder, a concurrent lookup either finds the id or (if it is being interned at that moment) does not.
+ */
+public class IdTable {
+
+	private static final int EMPTY = -1;
+
+	private volatile Table table;
+	private volatile int size;
+
+	public IdTable() {
+		this(64);
+	}
+
+	public IdTable(int expected) {
+		int capacity = 16;
+		// keep the load factor at or below 0.5
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		table = new Table(capacity, new String[Math.max(16, expected)]);
+	}
+
+	/**
+	 * Returns the handle for the id or -1 if it has not been interned
+	 */
+	public int get(String id) {
+		if (id == null) {
+			return -1;
+		}
+		Table table = this.table;
+		int index = hash(id) & table.mask;
+		int handle;
+		while ((handle = table.handles[index]) != EMPTY) {
+			// the id can still be null if we see a handle that is being interned concurrently
+			if (id.equals(table.ids[handle])) {
+				return handle;
+			}
+			index = (index + 1) & table.mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the handle for the id, assigning a new one if necessary
+	 */
+	public synchronized int intern(String id) {
+		if (id == null) {
+			throw new IllegalArgumentException("Can not intern a null id");
+		}
+		Table table = this.table;
+		int index = hash(id) & table.mask;
+		int handle;
+		while ((handle = table.handles[index]) != EMPTY) {
+			if (id.equals(table.ids[handle])) {
+				return handle;
+			}
+			index = (index + 1) & table.mask;
+		}
+		handle = size;
+		if (handle >= table.ids.length || (handle + 1) * 2 > table.handles.length) {
+			// grow and publish a new table, the new id is inserted before it becomes visible
+			int capacity = (handle + 1) * 2 > table.handles.length ? table.handles.length * 2 : table.handles.length;
+			String [] ids = Arrays.copyOf(table.ids, handle >= table.ids.length ? table.ids.length * 2 : table.ids.length);
+			ids[handle] = id;
+			Table grown = new Table(capacity, ids);
+			for (int i = 0; i <= handle; i++) {
+				grown.insert(ids[i], i);
+			}
+			this.table = grown;
+		}
+		else {
+			// a concurrent lookup that sees the handle before the id treats it as a mismatch
+			table.ids[handle] = id;
+			table.handles[index] = handle;
+			// publishes both writes through the volatile table field
+			this.table = table;
+		}
+		size = handle + 1;
+		return handle;
+	}
+
+	public String getId(int handle) {
+		return handle < 0 || handle >= size ? null : table.ids[handle];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static int hash(String id) {
+		// spread the higher bits, the xmi ids tend to share long prefixes
+		int hash = id.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private static class Table {
+		private final int [] handles;
+		private final String [] ids;
+		private final int mask;
+
+		private Table(int capacity, String [] ids) {
+			this.handles = new int[capacity];
+			Arrays.fill(handles, EMPTY);
+			this.ids = ids;
+			this.mask = capacity - 1;
+		}
+
+		private void insert(String id, int handle) {
+			int index = hash(id) & mask;
+			while (handles[index] != EMPTY) {
+				index = (index + 1) & mask;
+			}
+			handles[index] = handle;
+		}
+	}
+}
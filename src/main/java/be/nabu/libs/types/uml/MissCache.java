@@ -0,0 +1,119 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A bounded set of ids that could not be resolved.
+ * Lookups are lock free: a hit only marks the entry as referenced (and only if it was not yet marked).
+ * When the cache grows beyond its maximum size, a single thread evicts with a second chance policy: referenced entries are unmarked and kept, the others are removed.
+ * Frequently requested misses therefore stay cached, the eviction order is approximate.
+ */
+class MissCache {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	private volatile int maxSize;
+
+	MissCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	boolean contains(String id) {
+		Entry entry = entries.get(id);
+		if (entry == null) {
+			return false;
+		}
+		// prevent needless writes to a shared cache line for hot entries
+		if (!entry.referenced) {
+			entry.referenced = true;
+		}
+		return true;
+	}
+
+	void add(String id) {
+		if (maxSize <= 0) {
+			return;
+		}
+		if (entries.get(id) == null) {
+			entries.put(id, new Entry());
+			if (entries.size() > maxSize) {
+				evict();
+			}
+		}
+	}
+
+	void remove(String id) {
+		entries.remove(id);
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		if (maxSize <= 0) {
+			clear();
+		}
+		else if (entries.size() > maxSize) {
+			evict();
+		}
+	}
+
+	private void evict() {
+		// only one thread evicts, the others continue, the cache may temporarily exceed its size
+		if (!evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			// the first pass gives referenced entries a second chance, the second pass removes them if necessary
+			for (int pass = 0; pass < 2 && entries.size() > maxSize; pass++) {
+				Iterator<Entry> iterator = entries.values().iterator();
+				while (iterator.hasNext() && entries.size() > maxSize) {
+					Entry entry = iterator.next();
+					if (entry.referenced) {
+						entry.referenced = false;
+					}
+					else {
+						iterator.remove();
+					}
+				}
+			}
+		}
+		finally {
+			evicting.set(false);
+		}
+	}
+
+	private static class Entry {
+		private volatile boolean referenced;
+	}
+}
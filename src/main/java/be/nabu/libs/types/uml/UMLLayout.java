@@ -0,0 +1,193 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+
+/**
+ * The row layout of a (flat) complex type: each element is assigned a fixed slot so rows can be represented as simple object arrays.
+ * Slots are resolved by name once (e.g. when mapping the columns of a result set), after that all access is by index through {@link UMLRow}.
+ * <p>
+ * Once assigned, a slot never changes: elements that are removed from the type keep their slot as a tombstone (it is always empty) and new elements are appended.
+ */
+public class UMLLayout {
+
+	private final ComplexType type;
+	private final String [] names;
+	private final Element<?> [] elements;
+	private final Map<String, Integer> slots = new HashMap<String, Integer>();
+
+	UMLLayout(ComplexType type) {
+		this(type, null);
+	}
+
+	/**
+	 * When a previous layout is given, all of its slots are retained (removed elements become tombstones) and new elements are appended at the end
+	 */
+	UMLLayout(ComplexType type, UMLLayout previous) {
+		this.type = type;
+		Map<String, Element<?>> current = new HashMap<String, Element<?>>();
+		List<String> names = new ArrayList<String>();
+		if (previous != null) {
+			for (String name : previous.names) {
+				names.add(name);
+			}
+		}
+		for (Element<?> child : TypeUtils.getAllChildren(type)) {
+			current.put(child.getName(), child);
+			if (!names.contains(child.getName())) {
+				names.add(child.getName());
+			}
+		}
+		this.names = names.toArray(new String[names.size()]);
+		this.elements = new Element<?>[this.names.length];
+		for (int i = 0; i < this.names.length; i++) {
+			elements[i] = current.get(this.names[i]);
+			if (elements[i] != null) {
+				slots.put(this.names[i], i);
+			}
+		}
+	}
+
+	public ComplexType getType() {
+		return type;
+	}
+
+	/**
+	 * The amount of slots, including tombstones
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Returns the element in the slot or null if the slot is a tombstone
+	 */
+	public Element<?> getElement(int index) {
+		return elements[index];
+	}
+
+	public boolean isTombstone(int index) {
+		return elements[index] == null;
+	}
+
+	/**
+	 * Returns the slot for the given element or -1 if it is not (or no longer) part of this layout
+	 */
+	public int getIndex(String name) {
+		Integer index = slots.get(name);
+		return index == null ? -1 : index;
+	}
+
+	public Object[] newRow() {
+		return new Object[names.length];
+	}
+
+	/**
+	 * Creates an empty instance of the type that is backed by a row
+	 */
+	public UMLRow newInstance() {
+		return new UMLRow(this, newRow());
+	}
+
+	/**
+	 * Wraps an existing row in an instance of the type, the row is not copied
+	 */
+	public UMLRow newInstance(Object[] row) {
+		if (row.length != names.length) {
+			throw new IllegalArgumentException("The row has " + row.length + " slots, expecting " + names.length + " for: " + type.getName());
+		}
+		return new UMLRow(this, row);
+	}
+
+	public Object[] read(ComplexContent content) {
+		return read(content, newRow());
+	}
+
+	/**
+	 * Copies the values of the content into the given row, the row can be reused across instances of the same type.
+	 * Row backed instances of this type are copied by index (also if they were created with an older layout, the slots are retained), any other content is accessed by name.
+	 */
+	public Object[] read(ComplexContent content, Object[] row) {
+		if (content instanceof UMLRow && ((UMLRow) content).getLayout() == this) {
+			System.arraycopy(((UMLRow) content).getRow(), 0, row, 0, names.length);
+		}
+		else if (content instanceof UMLRow && ((UMLRow) content).getLayout().getType() == type) {
+			Object [] source = ((UMLRow) content).getRow();
+			for (int i = 0; i < names.length; i++) {
+				// slots that were added after the row was created are empty, slots that have since become tombstones are ignored
+				row[i] = i < source.length && elements[i] != null ? source[i] : null;
+			}
+		}
+		else {
+			UMLLayout sourceLayout = content instanceof UMLRow ? ((UMLRow) content).getLayout() : null;
+			for (int i = 0; i < names.length; i++) {
+				row[i] = elements[i] == null || (sourceLayout != null && sourceLayout.getIndex(names[i]) < 0) ? null : content.get(names[i]);
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Copies the row into a new instance created by the type itself, this accesses the instance by name, use {@link #newInstance(Object[])} to avoid that
+	 */
+	public ComplexContent write(Object[] row) {
+		ComplexContent content = type.newInstance();
+		write(row, content);
+		return content;
+	}
+
+	/**
+	 * Copies the row into the content, row backed instances of this type are written by index.
+	 * Values for slots that do not exist in the layout of the target row are skipped.
+	 */
+	public void write(Object[] row, ComplexContent content) {
+		if (content instanceof UMLRow && ((UMLRow) content).getLayout() == this) {
+			System.arraycopy(row, 0, ((UMLRow) content).getRow(), 0, names.length);
+		}
+		else if (content instanceof UMLRow && ((UMLRow) content).getLayout().getType() == type) {
+			UMLRow target = (UMLRow) content;
+			Object [] targetRow = target.getRow();
+			for (int i = 0; i < Math.min(names.length, targetRow.length); i++) {
+				if (elements[i] != null && !target.getLayout().isTombstone(i)) {
+					targetRow[i] = row[i];
+				}
+			}
+		}
+		else {
+			UMLLayout targetLayout = content instanceof UMLRow ? ((UMLRow) content).getLayout() : null;
+			for (int i = 0; i < names.length; i++) {
+				if (row[i] != null && elements[i] != null && (targetLayout == null || targetLayout.getIndex(names[i]) >= 0)) {
+					content.set(names[i], row[i]);
+				}
+			}
+		}
+	}
+}
@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -29,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -97,9 +100,18 @@ public class UMLRegistry implements DefinedTypeRegistry {
 	private String id;
 	private ModifiableTypeRegistry registry = new TypeRegistryImpl();
 	private Map<String, Element<?>> children = new HashMap<String, Element<?>>();
-	private Map<String, Type> dataTypes = new HashMap<String, Type>();
+	// the xmi ids of the types are interned into a table, the types (and the extension flags) are stored in arrays indexed by the handle
+	private IdTable ids = new IdTable();
+	private Type [] dataTypes = new Type[64];
+	// these are only filled in for the (few) data types and tag definitions, they are kept sparse
 	private Map<String, String> dataTypeNames = new HashMap<String, String>();
 	private Map<String, Property<?>> properties = new HashMap<String, Property<?>>();
+	// the types by their defined id (e.g. registry.model.Class), this includes the ones resolved through the default lookup
+	private Map<String, Type> definedTypes = new ConcurrentHashMap<String, Type>();
+	// ids that could not be resolved, this is cleared when new documents are loaded
+	private MissCache misses = new MissCache(10000);
+	// incremented at the start and end of every load, a miss is only cached if no load started or finished during its lookup
+	private volatile long loadEpoch;
 	private SimpleTypeWrapper wrapper = SimpleTypeWrapperFactory.getInstance().getWrapper();
 	private Converter converter = ConverterFactory.getInstance().getConverter();
 	private Logger logger = LoggerFactory.getLogger(getClass());
@@ -112,11 +124,17 @@ public class UMLRegistry implements DefinedTypeRegistry {
 	private boolean generateCollectionNames = false;
 	// the xmi id for the local "useExtensions" property
 	private String localUseExtensions, localCollectionName, localIgnoreExtensions;
-	private Map<String, Boolean> localUseExtensionsMap = new HashMap<String, Boolean>();
-	private Map<String, Boolean> localIgnoreExtensionsMap = new HashMap<String, Boolean>();
+	// the handles of the classes that have the tag set to true
+	private BitSet localUseExtensionsSet = new BitSet();
+	private BitSet localIgnoreExtensionsSet = new BitSet();
 	// the xmi id for a "documentation" tag
 	private String documentationId;
 	private List<? extends TypeRegistry> imports;
+	// compiled validators per structure id, these are built on first use and reset when new documents are loaded
+	private Map<String, UMLValidator> validators = new ConcurrentHashMap<String, UMLValidator>();
+	// when enabled, we assign a fixed slot to each element of each structure at load time
+	private boolean generateLayouts;
+	private Map<String, UMLLayout> layouts = new ConcurrentHashMap<String, UMLLayout>();
 	
 	// when generating flat documents we force the one in a 1-* relation to contain the referencing id (because this is likely for database purposes)
 	// in the hierarchic documents we might not need to
@@ -125,20 +143,45 @@ public class UMLRegistry implements DefinedTypeRegistry {
 	// this was old behavior due to a bug in modeling
 	private boolean inverseParentChildRelationship;
 	
+	// a sealed registry can not be loaded into and its types can not be modified by registries that import it
+	private boolean sealed;
+	
 	public UMLRegistry(String id) {
 		this.id = id;
 	}
 	
 	@Override
 	public Type getTypeById(String id) {
-		if (dataTypes.containsKey(id)) {
-			return dataTypes.get(id);
+		Type type = getDataType(id);
+		if (type == null && id != null) {
+			type = definedTypes.get(id);
+			if (type == null && !misses.contains(id)) {
+				long epoch = loadEpoch;
+				type = DefinedTypeRegistry.super.getTypeById(id);
+				if (type != null) {
+					definedTypes.put(id, type);
+				}
+				else {
+					misses.add(id);
+					// the epoch is incremented before the cache is cleared, so either the clear removes our entry or we see the new epoch here
+					if (loadEpoch != epoch) {
+						misses.remove(id);
+					}
+				}
+			}
 		}
-		return DefinedTypeRegistry.super.getTypeById(id);
+		return type;
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public void load(Document...documents) {
+		if (sealed) {
+			throw new IllegalStateException("The registry is sealed: " + id);
+		}
+		// loading can modify existing structures (e.g. associations and generalizations), any compiled validators may be outdated
+		validators.clear();
+		loadEpoch++;
+		misses.clear();
 		List<org.w3c.dom.Element> models = new ArrayList<org.w3c.dom.Element>();
 		for (Document document : documents) {
 			models.addAll(new XPath("//uml:Model").setNamespaceContext(resolver).query(document).asElementList());
@@ -168,7 +211,7 @@ public class UMLRegistry implements DefinedTypeRegistry {
 				else {
 					Property<?> property = PropertyFactory.getInstance().getProperty(tag.getAttribute("name"));
 					if (property != null) {
-						properties.put(tag.getAttribute("xmi.id"), property);
+						putProperty(tag.getAttribute("xmi.id"), property);
 					}
 					else {
 						logger.warn("Unknown tag: " + tag.getAttribute("name"));
@@ -187,8 +230,7 @@ public class UMLRegistry implements DefinedTypeRegistry {
 					logger.warn("Unknown simple type: " + dataType.getAttribute("name"));
 				}
 				else {
-					dataTypes.put(dataType.getAttribute("xmi.id"), nativeSchemaType);
-					dataTypeNames.put(dataType.getAttribute("xmi.id"), dataType.getAttribute("name"));
+					putDataType(dataType.getAttribute("xmi.id"), nativeSchemaType, dataType.getAttribute("name"));
 				}
 			}
 		}
@@ -212,8 +254,9 @@ public class UMLRegistry implements DefinedTypeRegistry {
 				structure.setName(clazz.getAttribute("name"));
 				structure.setId((id == null ? "" : id + ".") + name + "." + structure.getName());
 				structure.setNamespace(namespace);
-				dataTypes.put(clazz.getAttribute("xmi.id"), structure);
+				putDataType(clazz.getAttribute("xmi.id"), structure, null);
 				registry.register(structure);
+				definedTypes.put(structure.getId(), structure);
 				boolean hasCollectionName = false;
 				boolean hidden = false;
 				// you can set a tag on a class to have it use extensions
@@ -227,14 +270,14 @@ public class UMLRegistry implements DefinedTypeRegistry {
 						}
 					}
 					if (localUseExtensions != null && localUseExtensions.equals(id)) {
-						localUseExtensionsMap.put(clazz.getAttribute("xmi.id"), value.equals("true"));
+						localUseExtensionsSet.set(ids.intern(clazz.getAttribute("xmi.id")), value.equals("true"));
 						if (value.equals("true")) {
 							structure.setProperty(new ValueImpl<Boolean>(HiddenProperty.getInstance(), true));
 							hidden = true;
 						}
 					}
 					else if (localIgnoreExtensions != null && localIgnoreExtensions.equals(id)) {
-						localIgnoreExtensionsMap.put(clazz.getAttribute("xmi.id"), value.equals("true"));
+						localIgnoreExtensionsSet.set(ids.intern(clazz.getAttribute("xmi.id")), value.equals("true"));
 					}
 					else if (localCollectionName != null && localCollectionName.equals(id)) {
 						structure.setProperty(new ValueImpl<String>(CollectionNameProperty.getInstance(), value));
@@ -257,7 +300,7 @@ public class UMLRegistry implements DefinedTypeRegistry {
 			}
 			// need to fill in attributes _after_ all classes are loaded, otherwise we can't resolve references
 			for (org.w3c.dom.Element clazz : new XPath("uml:Namespace.ownedElement/uml:Class").setNamespaceContext(resolver).query(model).asElementList()) {
-				Structure structure = (Structure) dataTypes.get(clazz.getAttribute("xmi.id"));
+				Structure structure = (Structure) getDataType(clazz.getAttribute("xmi.id"));
 				for (org.w3c.dom.Element attribute : new XPath("uml:Classifier.feature/uml:Attribute").setNamespaceContext(resolver).query(clazz).asElementList()) {
 					List<Value<?>> values = new ArrayList<Value<?>>();
 					String attributeName = attribute.getAttribute("name");
@@ -286,13 +329,14 @@ public class UMLRegistry implements DefinedTypeRegistry {
 							if (documentationId != null && documentationId.equals(id)) {
 								values.add(new ValueImpl(CommentProperty.getInstance(), value));
 							}
-							else if (properties.containsKey(id) && value != null) {
+							else if (getProperty(id) != null && value != null) {
+								Property<?> property = getProperty(id);
 								try {
-									Object convertedValue = converter.convert(value, properties.get(id).getValueClass());
-									values.add(new ValueImpl(properties.get(id), convertedValue));
+									Object convertedValue = converter.convert(value, property.getValueClass());
+									values.add(new ValueImpl(property, convertedValue));
 								}
 								catch (Exception e) {
-									throw new IllegalArgumentException("Could not unmarshal property: " + properties.get(id).getName() + " (" + attributeName + ")");
+									throw new IllegalArgumentException("Could not unmarshal property: " + property.getName() + " (" + attributeName + ")");
 								}
 							}
 						}
@@ -304,9 +348,9 @@ public class UMLRegistry implements DefinedTypeRegistry {
 						typeId = new XPath("uml:StructuralFeature.type/uml:Class/@xmi.idref").setNamespaceContext(resolver).query(attribute).asString();
 					}
 					String dataTypeName = null;
-					if (typeId != null && dataTypes.containsKey(typeId)) {
-						type = dataTypes.get(typeId);
-						dataTypeName = dataTypeNames.get(typeId);
+					if (typeId != null && getDataType(typeId) != null) {
+						type = getDataType(typeId);
+						dataTypeName = getDataTypeName(typeId);
 					}
 					else {
 						String referencedTypeId = new XPath("uml:StructuralFeature.type/uml:DataType/@href").setNamespaceContext(resolver).query(attribute).asString();
@@ -320,7 +364,7 @@ public class UMLRegistry implements DefinedTypeRegistry {
 								if (uri.getFragment() != null) {
 									// if we don't know the data type yet, do a best effort to load it
 									// each uri should only be loaded (or tried) once
-									if (!dataTypes.containsKey(uri.getFragment())) {
+									if (getDataType(uri.getFragment()) == null) {
 										if (imports != null) {
 											for (TypeRegistry imported : imports) {
 												type = imported.getTypeById(uri.getFragment());
@@ -359,8 +403,8 @@ public class UMLRegistry implements DefinedTypeRegistry {
 										}
 									}
 									if (type == null) {
-										type = dataTypes.get(uri.getFragment());
-										dataTypeName = dataTypeNames.get(uri.getFragment());
+										type = getDataType(uri.getFragment());
+										dataTypeName = getDataTypeName(uri.getFragment());
 									}
 								}
 							}
@@ -426,8 +470,8 @@ public class UMLRegistry implements DefinedTypeRegistry {
 					logger.error("Can not implement generalization from " + superClass + " to " + childClass);
 					continue;
 				}
-				Type superType = dataTypes.get(superClass);
-				Type childType = dataTypes.get(childClass);
+				Type superType = getDataType(superClass);
+				Type childType = getDataType(childClass);
 				
 				UMLRegistry superRepository = this;
 				// if not found, check imports to see if we can find it there
@@ -455,16 +499,16 @@ public class UMLRegistry implements DefinedTypeRegistry {
 					continue;
 				}
 				// make sure we use the settings from whatever repository we pulled the supertype from
-				Map<String, Boolean> localIgnoreExtensionsMap = superRepository.localIgnoreExtensionsMap; 
+				boolean superIgnoresExtensions = superRepository.isFlagged(superRepository.localIgnoreExtensionsSet, superClass);
 //				boolean useExtensions = this.useExtensions || superRepository.useExtensions;
-				Map<String, Boolean> localUseExtensionsMap = superRepository.localUseExtensionsMap;
-				if (!useExtensions && localIgnoreExtensionsMap.containsKey(superClass) && localIgnoreExtensionsMap.get(superClass)) {
+				boolean superUsesExtensions = superRepository.isFlagged(superRepository.localUseExtensionsSet, superClass);
+				if (!useExtensions && superIgnoresExtensions) {
 					if (superType instanceof DefinedType && childType instanceof ComplexType && ((ComplexType) childType).get("id") != null) {
 						Element<?> element = ((ComplexType) childType).get("id");
 						element.setProperty(new ValueImpl<String>(ForeignKeyProperty.getInstance(), ((DefinedType) superType).getId() + ":id"));
 					}
 				}
-				else if (useExtensions || (localUseExtensionsMap.containsKey(superClass) && localUseExtensionsMap.get(superClass))) {
+				else if (useExtensions || superUsesExtensions) {
 					// remove the database fields from the child type, it will inherit them from the parent
 					if (addDatabaseFields && childType instanceof ModifiableComplexType) {
 						ModifiableComplexType modifiableChild = (ModifiableComplexType) childType;
@@ -529,6 +573,12 @@ public class UMLRegistry implements DefinedTypeRegistry {
 					logger.error("Could not process association because either from or to could not be found: " + fromParticipant + " / " + toParticipant);
 					continue;
 				}
+				// the reference is added to one of the participants, if that participant belongs to a sealed import we can not modify it
+				ComplexType target = toMaxOccurs != null && toMaxOccurs != 1 && (generateFlatDocuments || forceOneToManyInNonFlat) ? toParticipant : fromParticipant;
+				// we fail instead of skipping the association, otherwise the resulting types silently differ from a registry built without sealed imports
+				if (isSealedImport(target)) {
+					throw new IllegalStateException("Can not process association " + (associationName == null ? "" : associationName + " ") + "between " + fromParticipant.getName() + " and " + toParticipant.getName() + ", it would modify the sealed imported type: " + target.getName());
+				}
 				// we are only mapping one-one or one-many relations, this means the reference is always singular, at most "optional", never a list
 				if (generateFlatDocuments) {
 					List<Value<?>> values = new ArrayList<Value<?>>();
@@ -584,6 +634,90 @@ public class UMLRegistry implements DefinedTypeRegistry {
 				}
 			}
 		}
+		// anything that was looked up while loading may have been resolved by now
+		loadEpoch++;
+		misses.clear();
+		// validators may have been requested for structures that were still being built
+		validators.clear();
+		// existing layouts are always rebuilt (retaining their slots) because loading may have added or removed elements
+		for (int i = 0; i < Math.min(ids.size(), dataTypes.length); i++) {
+			Type type = dataTypes[i];
+			if (type instanceof DefinedStructure) {
+				DefinedStructure structure = (DefinedStructure) type;
+				UMLLayout previous = layouts.get(structure.getId());
+				if (generateLayouts || previous != null) {
+					layouts.put(structure.getId(), new UMLLayout(structure, previous));
+				}
+			}
+		}
+	}
+	
+	private Type getDataType(String id) {
+		int handle = ids.get(id);
+		Type [] dataTypes = this.dataTypes;
+		return handle < 0 || handle >= dataTypes.length ? null : dataTypes[handle];
+	}
+	
+	private String getDataTypeName(String id) {
+		return id == null ? null : dataTypeNames.get(id);
+	}
+	
+	private void putDataType(String id, Type type, String name) {
+		int handle = ids.intern(id);
+		ensureCapacity(handle);
+		dataTypes[handle] = type;
+		if (name != null) {
+			dataTypeNames.put(id, name);
+		}
+	}
+	
+	private Property<?> getProperty(String id) {
+		return id == null ? null : properties.get(id);
+	}
+	
+	private void putProperty(String id, Property<?> property) {
+		properties.put(id, property);
+	}
+	
+	private boolean isFlagged(BitSet set, String id) {
+		int handle = ids.get(id);
+		return handle >= 0 && set.get(handle);
+	}
+	
+	private void ensureCapacity(int handle) {
+		if (handle >= dataTypes.length) {
+			int length = Math.max(handle + 1, dataTypes.length * 2);
+			dataTypes = Arrays.copyOf(dataTypes, length);
+		}
+	}
+	
+	public UMLLayout getLayout(String typeId) {
+		Type type = getTypeById(typeId);
+		return type instanceof DefinedStructure ? getLayout((DefinedStructure) type) : null;
+	}
+	
+	public UMLLayout getLayout(DefinedStructure structure) {
+		UMLLayout layout = layouts.get(structure.getId());
+		if (layout == null || layout.getType() != structure) {
+			layout = new UMLLayout(structure);
+			layouts.put(structure.getId(), layout);
+		}
+		return layout;
+	}
+	
+	public UMLValidator getValidator(String typeId) {
+		Type type = getTypeById(typeId);
+		return type instanceof DefinedStructure ? getValidator((DefinedStructure) type) : null;
+	}
+	
+	public UMLValidator getValidator(DefinedStructure structure) {
+		UMLValidator validator = validators.get(structure.getId());
+		// it does not matter if two threads build the same validator concurrently, the result is identical
+		if (validator == null || validator.getType() != structure) {
+			validator = new UMLValidator(structure, this);
+			validators.put(structure.getId(), validator);
+		}
+		return validator;
 	}
 	
 	public boolean isForceOneToManyInNonFlat() {
@@ -624,6 +758,17 @@ public class UMLRegistry implements DefinedTypeRegistry {
 		}
 		return "-1".equals(multiplicity.getAttribute("upper")) ? 0 : Integer.parseInt(multiplicity.getAttribute("upper"));
 	}
+	private boolean isSealedImport(Type type) {
+		if (imports != null && type instanceof DefinedType) {
+			for (TypeRegistry imported : imports) {
+				if (imported instanceof UMLRegistry && ((UMLRegistry) imported).isSealed() && imported.getTypeById(((DefinedType) type).getId()) == type) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
 	private Type getParticipant(org.w3c.dom.Element associationEnd) {
 		String reference = new XPath("uml:AssociationEnd.participant/uml:Class/@xmi.idref").setNamespaceContext(resolver).query(associationEnd).asString();
 		// external references start with the argouml url e.g.: http://argouml.org/user-profiles/core.xmi#127-0-1-1--349ff93a:1578fc8f0d7:-8000:0000000000000990
@@ -633,7 +778,7 @@ public class UMLRegistry implements DefinedTypeRegistry {
 				reference = href.replaceFirst("^.*#", "");
 			}
 		}
-		Type type = dataTypes.get(reference);
+		Type type = getDataType(reference);
 		if (type == null && imports != null) {
 			for (TypeRegistry imported : imports) {
 //				type = imported.dataTypes.get(reference);
@@ -761,6 +906,30 @@ public class UMLRegistry implements DefinedTypeRegistry {
 		this.uuids = uuids;
 	}
 
+	public boolean isSealed() {
+		return sealed;
+	}
+
+	public void setSealed(boolean sealed) {
+		this.sealed = sealed;
+	}
+
+	public int getMaxMisses() {
+		return misses.getMaxSize();
+	}
+
+	public void setMaxMisses(int maxMisses) {
+		misses.setMaxSize(maxMisses);
+	}
+
+	public boolean isGenerateLayouts() {
+		return generateLayouts;
+	}
+
+	public void setGenerateLayouts(boolean generateLayouts) {
+		this.generateLayouts = generateLayouts;
+	}
+
 	public boolean isUseExtensions() {
 		return useExtensions;
 	}
@@ -0,0 +1,293 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the tenant registries that are currently in use, the shared registries (the imports) are loaded once and never evicted.
+ * The shared registries are sealed by the pool so tenant registries can not modify the shared types: a tenant that is rebuilt after eviction would otherwise add its fields again.
+ * A tenant model that needs to modify a shared type fails to build instead.
+ * <p>
+ * Tenant registries are evicted in least recently used order when the budget is exceeded or when they have been idle for too long, they are rebuilt by the factory on the next access.
+ * Only one build per tenant runs at any time, concurrent requests for the same tenant wait for it.
+ * A build that was running when the tenant was invalidated is not retained.
+ * <p>
+ * Idle registries are swept when the pool is accessed (at most once per max idle time). If the pool can remain unused for long periods, {@link #evictIdle()} should be scheduled externally.
+ */
+public class UMLRegistryPool {
+
+	private List<UMLRegistry> shared;
+	private UMLRegistryFactory factory;
+	// the maximum amount of tenant registries, 0 means unlimited
+	private int maxTenants;
+	// the maximum amount of types over all tenant registries (as an approximation of the memory use), 0 means unlimited
+	private int maxTypes;
+	// the maximum time (in ms) a tenant registry can remain unused, 0 means unlimited
+	private volatile long maxIdleTime;
+	private long lastSweep = System.currentTimeMillis();
+
+	// access ordered so the first entry is always the least recently used
+	private LinkedHashMap<String, TenantRegistry> tenants = new LinkedHashMap<String, TenantRegistry>(16, 0.75f, true);
+	// the builds that are currently running
+	private Map<String, FutureTask<UMLRegistry>> builds = new ConcurrentHashMap<String, FutureTask<UMLRegistry>>();
+	// incremented for a tenant every time it is invalidated, a build that started in an older generation is not retained
+	private Map<String, Long> generations = new HashMap<String, Long>();
+	private int types;
+	private AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), joins = new AtomicLong(), evictions = new AtomicLong();
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * Note that the given shared registries are <b>sealed</b> by the pool (see {@link UMLRegistry#setSealed(boolean)}): they must be fully loaded before they are passed in and can not be loaded into afterwards.
+	 * Tenant models that would add a reference to a shared type (e.g. a foreign key for an association) fail to build.
+	 */
+	public UMLRegistryPool(UMLRegistryFactory factory, List<UMLRegistry> shared) {
+		this.factory = factory;
+		this.shared = shared == null ? new ArrayList<UMLRegistry>() : shared;
+		for (UMLRegistry registry : this.shared) {
+			registry.setSealed(true);
+		}
+	}
+
+	public UMLRegistry getRegistry(final String tenant) throws IOException {
+		synchronized(this) {
+			sweep();
+			TenantRegistry existing = tenants.get(tenant);
+			if (existing != null) {
+				hits.incrementAndGet();
+				existing.lastAccessed = System.currentTimeMillis();
+				return existing.registry;
+			}
+		}
+		// build outside of the lock so other tenants are not blocked
+		final long generation = getGeneration(tenant);
+		FutureTask<UMLRegistry> task = new FutureTask<UMLRegistry>(new Callable<UMLRegistry>() {
+			@Override
+			public UMLRegistry call() throws Exception {
+				return build(tenant, generation);
+			}
+		});
+		FutureTask<UMLRegistry> running = builds.putIfAbsent(tenant, task);
+		if (running == null) {
+			// a build registers its result before it is removed from the running builds, so it may have finished since our first lookup
+			synchronized(this) {
+				TenantRegistry existing = tenants.get(tenant);
+				if (existing != null) {
+					builds.remove(tenant, task);
+					hits.incrementAndGet();
+					existing.lastAccessed = System.currentTimeMillis();
+					return existing.registry;
+				}
+			}
+			misses.incrementAndGet();
+			try {
+				task.run();
+			}
+			finally {
+				builds.remove(tenant, task);
+			}
+			running = task;
+		}
+		else {
+			joins.incrementAndGet();
+		}
+		try {
+			return running.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building the registry for tenant: " + tenant, e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("Could not build the registry for tenant: " + tenant, e.getCause());
+		}
+	}
+
+	private UMLRegistry build(String tenant, long generation) throws IOException {
+		UMLRegistry registry = factory.newRegistry(tenant, Collections.unmodifiableList(shared));
+		synchronized(this) {
+			// the tenant was invalidated while we were building, the result is based on outdated models and is only returned to the requests that were waiting for it
+			if (getGeneration(tenant) != generation) {
+				logger.debug("Discarding outdated registry for tenant: " + tenant);
+				return registry;
+			}
+			TenantRegistry created = new TenantRegistry(registry, count(registry));
+			tenants.put(tenant, created);
+			types += created.types;
+			evict(tenant);
+		}
+		return registry;
+	}
+
+	/**
+	 * Removes all the tenant registries that have exceeded the maximum idle time
+	 */
+	public synchronized void evictIdle() {
+		lastSweep = System.currentTimeMillis();
+		if (maxIdleTime > 0) {
+			Iterator<Map.Entry<String, TenantRegistry>> iterator = tenants.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, TenantRegistry> entry = iterator.next();
+				if (lastSweep - entry.getValue().lastAccessed > maxIdleTime) {
+					remove(iterator, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the registry for the tenant (e.g. because the models have changed), it will be rebuilt on the next access
+	 */
+	public synchronized void invalidate(String tenant) {
+		generations.put(tenant, getGeneration(tenant) + 1);
+		// a running build is forgotten so the next access starts a new one
+		builds.remove(tenant);
+		TenantRegistry removed = tenants.remove(tenant);
+		if (removed != null) {
+			types -= removed.types;
+		}
+	}
+
+	private synchronized long getGeneration(String tenant) {
+		Long generation = generations.get(tenant);
+		return generation == null ? 0 : generation;
+	}
+
+	private void sweep() {
+		if (maxIdleTime > 0 && System.currentTimeMillis() - lastSweep >= maxIdleTime) {
+			evictIdle();
+		}
+	}
+
+	private void evict(String retain) {
+		sweep();
+		Iterator<Map.Entry<String, TenantRegistry>> iterator = tenants.entrySet().iterator();
+		while (iterator.hasNext() && isOverBudget()) {
+			Map.Entry<String, TenantRegistry> entry = iterator.next();
+			// never evict the registry we just built
+			if (!entry.getKey().equals(retain)) {
+				remove(iterator, entry);
+			}
+		}
+	}
+
+	private void remove(Iterator<Map.Entry<String, TenantRegistry>> iterator, Map.Entry<String, TenantRegistry> entry) {
+		iterator.remove();
+		types -= entry.getValue().types;
+		evictions.incrementAndGet();
+		logger.debug("Evicted registry for tenant: " + entry.getKey());
+	}
+
+	private boolean isOverBudget() {
+		return (maxTenants > 0 && tenants.size() > maxTenants) || (maxTypes > 0 && types > maxTypes);
+	}
+
+	private static int count(UMLRegistry registry) {
+		int count = 0;
+		for (String namespace : registry.getNamespaces()) {
+			count += registry.getComplexTypes(namespace).size();
+		}
+		return count;
+	}
+
+	public List<UMLRegistry> getShared() {
+		return shared;
+	}
+
+	public synchronized int getSize() {
+		return tenants.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * The amount of builds that were started
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * The amount of requests that waited for a build started by another request
+	 */
+	public long getJoins() {
+		return joins.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public synchronized int getMaxTenants() {
+		return maxTenants;
+	}
+
+	public synchronized void setMaxTenants(int maxTenants) {
+		this.maxTenants = maxTenants;
+	}
+
+	public synchronized int getMaxTypes() {
+		return maxTypes;
+	}
+
+	public synchronized void setMaxTypes(int maxTypes) {
+		this.maxTypes = maxTypes;
+	}
+
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	private static class TenantRegistry {
+		private UMLRegistry registry;
+		private int types;
+		private long lastAccessed = System.currentTimeMillis();
+
+		public TenantRegistry(UMLRegistry registry, int types) {
+			this.registry = registry;
+			this.types = types;
+		}
+	}
+}
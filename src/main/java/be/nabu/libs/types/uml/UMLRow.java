@@ -0,0 +1,98 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import be.nabu.libs.converter.ConverterFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.SimpleType;
+
+/**
+ * An instance of a flat type that stores its values in the slots of a {@link UMLLayout}.
+ * Use {@link #get(int)} and {@link #set(int, Object)} for index based access, the name based methods resolve the slot first.
+ * Only direct children are supported by name, paths into child types or collections are not.
+ */
+public class UMLRow implements ComplexContent {
+
+	private UMLLayout layout;
+	private Object [] row;
+
+	UMLRow(UMLLayout layout, Object [] row) {
+		this.layout = layout;
+		this.row = row;
+	}
+
+	public Object get(int index) {
+		return row[index];
+	}
+
+	/**
+	 * Sets the value as is, it is up to the caller to make sure it matches the type of the element
+	 */
+	public void set(int index, Object value) {
+		if (value != null && layout.isTombstone(index)) {
+			throw new IllegalArgumentException("The slot " + index + " (" + layout.getName(index) + ") is no longer part of: " + layout.getType().getName());
+		}
+		row[index] = value;
+	}
+
+	@Override
+	public ComplexType getType() {
+		return layout.getType();
+	}
+
+	@Override
+	public Object get(String path) {
+		return row[getIndex(path)];
+	}
+
+	@Override
+	public void set(String path, Object value) {
+		int index = getIndex(path);
+		Element<?> element = layout.getElement(index);
+		// name based access behaves like a regular instance and converts the value where necessary
+		if (value != null && element.getType() instanceof SimpleType) {
+			Class<?> instanceClass = ((SimpleType<?>) element.getType()).getInstanceClass();
+			if (!instanceClass.isInstance(value)) {
+				Object converted = ConverterFactory.getInstance().getConverter().convert(value, instanceClass);
+				if (converted == null) {
+					throw new IllegalArgumentException("Can not convert " + value + " to " + instanceClass + " for: " + path);
+				}
+				value = converted;
+			}
+		}
+		row[index] = value;
+	}
+
+	private int getIndex(String path) {
+		int index = layout.getIndex(path);
+		if (index < 0) {
+			throw new IllegalArgumentException("The element '" + path + "' does not exist in: " + layout.getType().getName());
+		}
+		return index;
+	}
+
+	public UMLLayout getLayout() {
+		return layout;
+	}
+
+	public Object[] getRow() {
+		return row;
+	}
+}
@@ -0,0 +1,372 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.nabu.libs.converter.ConverterFactory;
+import be.nabu.libs.converter.api.Converter;
+import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.properties.LengthProperty;
+import be.nabu.libs.types.properties.MaxLengthProperty;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.properties.MinLengthProperty;
+import be.nabu.libs.types.properties.MinOccursProperty;
+import be.nabu.libs.types.properties.PatternProperty;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * A validator for a single complex type where the tagged values are resolved once up front.
+ * The constraints are flattened into arrays (one slot per child element) so a validation run does not need to go through the property lists again.
+ * <p>
+ * The supported constraints are: minOccurs, maxOccurs, length, minLength, maxLength, pattern, minInclusive, maxInclusive, minExclusive and maxExclusive.
+ * Complex children are validated recursively with the validator of their type.
+ * Any other restriction (e.g. enumeration or totalDigits) is <b>not</b> enforced, the affected elements are logged when the validator is built and can be retrieved with {@link #getUnsupported()}.
+ * <p>
+ * The checks themselves do not allocate: matchers are reused per thread and pattern (shared by all validators) and lists are accessed by index.
+ * The values are still retrieved from the content by name because that is the only access {@link ComplexContent} offers.
+ */
+public class UMLValidator {
+
+	// no limit was set for the length
+	private static final int UNBOUNDED = -1;
+
+	// restrictions that the generic validation may enforce but this validator does not
+	private static final Set<String> RESTRICTIONS = new HashSet<String>(Arrays.asList("enumeration", "totalDigits", "fractionDigits", "whiteSpace"));
+
+	// the patterns are shared by all validators so rebuilding a validator (e.g. after a load) does not leave new thread locals behind
+	// this is bounded by the amount of distinct patterns in the models
+	private static final Map<String, SharedPattern> PATTERNS = new ConcurrentHashMap<String, SharedPattern>();
+
+	private final ComplexType type;
+	private final UMLRegistry registry;
+	private final String [] names;
+	private final SharedPattern [] patterns;
+	private final int [] minLengths, maxLengths, minOccurs, maxOccurs;
+	@SuppressWarnings("rawtypes")
+	private final Comparable [] minInclusives, maxInclusives, minExclusives, maxExclusives;
+	// the complex type of each child (if any) and the validator for it, the latter is resolved on first use to support recursive types
+	private final ComplexType [] complexTypes;
+	private final UMLValidator [] children;
+	private final List<String> unsupported;
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	@SuppressWarnings("rawtypes")
+	UMLValidator(ComplexType type, UMLRegistry registry) {
+		this.type = type;
+		this.registry = registry;
+		List<Element<?>> elements = new ArrayList<Element<?>>();
+		for (Element<?> child : TypeUtils.getAllChildren(type)) {
+			elements.add(child);
+		}
+		int size = elements.size();
+		names = new String[size];
+		patterns = new SharedPattern[size];
+		minLengths = new int[size];
+		maxLengths = new int[size];
+		minOccurs = new int[size];
+		maxOccurs = new int[size];
+		minInclusives = new Comparable[size];
+		maxInclusives = new Comparable[size];
+		minExclusives = new Comparable[size];
+		maxExclusives = new Comparable[size];
+		complexTypes = new ComplexType[size];
+		children = new UMLValidator[size];
+		List<String> unsupported = new ArrayList<String>();
+		for (int i = 0; i < size; i++) {
+			Element<?> child = elements.get(i);
+			names[i] = child.getName();
+			String pattern = ValueUtils.getValue(PatternProperty.getInstance(), child.getProperties());
+			patterns[i] = pattern == null ? null : getPattern(pattern);
+			Integer length = ValueUtils.getValue(LengthProperty.getInstance(), child.getProperties());
+			Integer minLength = ValueUtils.getValue(MinLengthProperty.getInstance(), child.getProperties());
+			Integer maxLength = ValueUtils.getValue(MaxLengthProperty.getInstance(), child.getProperties());
+			minLengths[i] = length != null ? length : (minLength == null ? UNBOUNDED : minLength);
+			maxLengths[i] = length != null ? length : (maxLength == null ? UNBOUNDED : maxLength);
+			// the defaults for both occurrences are 1, a max occurs of 0 means unbounded
+			Integer min = ValueUtils.getValue(MinOccursProperty.getInstance(), child.getProperties());
+			Integer max = ValueUtils.getValue(MaxOccursProperty.getInstance(), child.getProperties());
+			minOccurs[i] = min == null ? 1 : min;
+			maxOccurs[i] = max == null ? 1 : max;
+			if (child.getType() instanceof ComplexType) {
+				complexTypes[i] = (ComplexType) child.getType();
+			}
+			// the range properties are generic, they are matched on name and their bounds are converted to the type of the element
+			Class<?> instanceClass = child.getType() instanceof SimpleType ? ((SimpleType<?>) child.getType()).getInstanceClass() : null;
+			for (Value<?> value : child.getProperties()) {
+				if (value == null || value.getProperty() == null || value.getValue() == null) {
+					continue;
+				}
+				String name = value.getProperty().getName();
+				if ("minInclusive".equals(name)) {
+					minInclusives[i] = toBound(child, name, value.getValue(), instanceClass);
+				}
+				else if ("maxInclusive".equals(name)) {
+					maxInclusives[i] = toBound(child, name, value.getValue(), instanceClass);
+				}
+				else if ("minExclusive".equals(name)) {
+					minExclusives[i] = toBound(child, name, value.getValue(), instanceClass);
+				}
+				else if ("maxExclusive".equals(name)) {
+					maxExclusives[i] = toBound(child, name, value.getValue(), instanceClass);
+				}
+				else if (RESTRICTIONS.contains(name)) {
+					unsupported.add(child.getName() + ":" + name);
+				}
+			}
+		}
+		this.unsupported = Collections.unmodifiableList(unsupported);
+		if (!unsupported.isEmpty()) {
+			logger.warn("The compiled validator for " + type.getName() + " does not enforce: " + unsupported);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private Comparable toBound(Element<?> child, String property, Object value, Class<?> instanceClass) {
+		if (instanceClass != null && !instanceClass.isInstance(value)) {
+			Converter converter = ConverterFactory.getInstance().getConverter();
+			Object converted = converter.convert(value, instanceClass);
+			if (converted != null) {
+				value = converted;
+			}
+		}
+		if (!(value instanceof Comparable)) {
+			throw new IllegalArgumentException("The " + property + " of " + type.getName() + "." + child.getName() + " is not comparable: " + value);
+		}
+		return (Comparable) value;
+	}
+
+	public ComplexType getType() {
+		return type;
+	}
+
+	/**
+	 * The restrictions (in the form element:property) that are present on the type but not enforced by this validator
+	 */
+	public List<String> getUnsupported() {
+		return unsupported;
+	}
+
+	public boolean isValid(ComplexContent content) {
+		return getFirstViolation(content) < 0;
+	}
+
+	/**
+	 * Returns the index of the first element that does not meet its constraints or -1 if the content is valid.
+	 * Use {@link #getName(int)} to find the element that belongs to the index.
+	 */
+	public int getFirstViolation(ComplexContent content) {
+		for (int i = 0; i < names.length; i++) {
+			if (!isValid(i, content.get(names[i]))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the names of all the elements that do not meet their constraints to the given list and returns the amount of violations.
+	 * The list can be reused across calls to avoid allocation.
+	 */
+	public int validate(ComplexContent content, List<String> violations) {
+		int amount = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (!isValid(i, content.get(names[i]))) {
+				violations.add(names[i]);
+				amount++;
+			}
+		}
+		return amount;
+	}
+
+	/**
+	 * Returns the names of all the elements that do not meet their constraints, an empty list means the content is valid.
+	 * This allocates a new list for every call, use {@link #validate(ComplexContent, List)} on hot paths.
+	 */
+	public List<String> validate(ComplexContent content) {
+		List<String> violations = new ArrayList<String>();
+		validate(content, violations);
+		return violations;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	private boolean isValid(int index, Object value) {
+		if (value == null) {
+			return minOccurs[index] == 0;
+		}
+		// lists are accessed by index to prevent iterator creation
+		if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			if (!isValidAmount(index, list.size())) {
+				return false;
+			}
+			for (int i = 0; i < list.size(); i++) {
+				if (!isValidSingle(index, list.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		else if (value instanceof Object[]) {
+			Object [] array = (Object[]) value;
+			if (!isValidAmount(index, array.length)) {
+				return false;
+			}
+			for (int i = 0; i < array.length; i++) {
+				if (!isValidSingle(index, array[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		// other collections need an iterator, this is the only path that allocates
+		else if (value instanceof Collection) {
+			Collection<?> collection = (Collection<?>) value;
+			if (!isValidAmount(index, collection.size())) {
+				return false;
+			}
+			for (Object single : collection) {
+				if (!isValidSingle(index, single)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		// a single value counts as one occurrence
+		return isValidAmount(index, 1) && isValidSingle(index, value);
+	}
+
+	private boolean isValidAmount(int index, int amount) {
+		return amount >= minOccurs[index] && (maxOccurs[index] == 0 || amount <= maxOccurs[index]);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private boolean isValidSingle(int index, Object value) {
+		if (value == null) {
+			return true;
+		}
+		if (value instanceof ComplexContent) {
+			return complexTypes[index] == null || getChild(index).isValid((ComplexContent) value);
+		}
+		// length and pattern restrictions only make sense on textual values, they are ignored for other types
+		if (value instanceof CharSequence) {
+			CharSequence sequence = (CharSequence) value;
+			if (minLengths[index] != UNBOUNDED && sequence.length() < minLengths[index]) {
+				return false;
+			}
+			if (maxLengths[index] != UNBOUNDED && sequence.length() > maxLengths[index]) {
+				return false;
+			}
+			if (patterns[index] != null && !patterns[index].matches(sequence)) {
+				return false;
+			}
+		}
+		if (minInclusives[index] != null && !(isComparable(minInclusives[index], value) && minInclusives[index].compareTo(value) <= 0)) {
+			return false;
+		}
+		if (maxInclusives[index] != null && !(isComparable(maxInclusives[index], value) && maxInclusives[index].compareTo(value) >= 0)) {
+			return false;
+		}
+		if (minExclusives[index] != null && !(isComparable(minExclusives[index], value) && minExclusives[index].compareTo(value) < 0)) {
+			return false;
+		}
+		if (maxExclusives[index] != null && !(isComparable(maxExclusives[index], value) && maxExclusives[index].compareTo(value) > 0)) {
+			return false;
+		}
+		return true;
+	}
+
+	// a value of a different type than the bound can not be checked against it and is considered invalid
+	@SuppressWarnings("rawtypes")
+	private static boolean isComparable(Comparable bound, Object value) {
+		return bound.getClass().isInstance(value);
+	}
+
+	private UMLValidator getChild(int index) {
+		// a benign race: concurrent threads may resolve the same validator
+		if (children[index] == null) {
+			children[index] = complexTypes[index] instanceof DefinedStructure && registry != null
+				? registry.getValidator((DefinedStructure) complexTypes[index])
+				: new UMLValidator(complexTypes[index], registry);
+		}
+		return children[index];
+	}
+
+	private static SharedPattern getPattern(String regex) {
+		SharedPattern pattern = PATTERNS.get(regex);
+		if (pattern == null) {
+			pattern = new SharedPattern(Pattern.compile(regex));
+			SharedPattern existing = PATTERNS.putIfAbsent(regex, pattern);
+			if (existing != null) {
+				pattern = existing;
+			}
+		}
+		return pattern;
+	}
+
+	private static class SharedPattern {
+		private final Pattern pattern;
+		private final ThreadLocal<Matcher> matcher = new ThreadLocal<Matcher>() {
+			@Override
+			protected Matcher initialValue() {
+				return pattern.matcher("");
+			}
+		};
+
+		private SharedPattern(Pattern pattern) {
+			this.pattern = pattern;
+		}
+
+		private boolean matches(CharSequence sequence) {
+			Matcher matcher = this.matcher.get();
+			try {
+				return matcher.reset(sequence).matches();
+			}
+			finally {
+				// don't hold on to the validated data
+				matcher.reset("");
+			}
+		}
+	}
+}
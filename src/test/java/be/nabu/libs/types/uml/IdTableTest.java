@@ -0,0 +1,153 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class IdTableTest extends TestCase {
+
+	public void testInternAndGet() {
+		IdTable table = new IdTable();
+		int first = table.intern("127-0-1-1--349ff93a:1578fc8f0d7:-8000:0000000000000990");
+		int second = table.intern("127-0-1-1--349ff93a:1578fc8f0d7:-8000:0000000000000991");
+		assertEquals(0, first);
+		assertEquals(1, second);
+		assertEquals(first, table.intern("127-0-1-1--349ff93a:1578fc8f0d7:-8000:0000000000000990"));
+		assertEquals(second, table.get("127-0-1-1--349ff93a:1578fc8f0d7:-8000:0000000000000991"));
+		assertEquals("127-0-1-1--349ff93a:1578fc8f0d7:-8000:0000000000000990", table.getId(first));
+		assertEquals(2, table.size());
+	}
+
+	public void testUnknownIds() {
+		IdTable table = new IdTable();
+		assertEquals(-1, table.get("unknown"));
+		assertEquals(-1, table.get(null));
+		table.intern("known");
+		assertEquals(-1, table.get("unknown"));
+		assertNull(table.getId(-1));
+		assertNull(table.getId(1));
+		// a lookup never interns
+		assertEquals(1, table.size());
+	}
+
+	public void testNullCanNotBeInterned() {
+		try {
+			new IdTable().intern(null);
+			fail("Expected an exception for a null id");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testProbeCollisions() {
+		// "Aa" and "BB" have the same hash code, so do all their combinations
+		String [] colliding = { "AaAa", "AaBB", "BBAa", "BBBB", "AaAaAa", "BBBBBB" };
+		assertEquals(colliding[0].hashCode(), colliding[3].hashCode());
+		IdTable table = new IdTable(4);
+		for (int i = 0; i < colliding.length; i++) {
+			assertEquals(i, table.intern(colliding[i]));
+		}
+		for (int i = 0; i < colliding.length; i++) {
+			assertEquals(i, table.get(colliding[i]));
+			assertEquals(i, table.intern(colliding[i]));
+		}
+		assertEquals(-1, table.get("AaBBAa"));
+	}
+
+	public void testGrowth() {
+		// starts with 16 ids and 16 probe slots, both have to grow several times
+		IdTable table = new IdTable(1);
+		int amount = 10000;
+		for (int i = 0; i < amount; i++) {
+			assertEquals(i, table.intern("id-" + i));
+			// everything interned so far remains reachable across the resizes
+			if (i % 97 == 0 || (i & (i - 1)) == 0 || ((i + 1) & i) == 0) {
+				for (int j = 0; j <= i; j += Math.max(1, i / 50)) {
+					assertEquals(j, table.get("id-" + j));
+				}
+			}
+		}
+		assertEquals(amount, table.size());
+		for (int i = 0; i < amount; i++) {
+			assertEquals(i, table.get("id-" + i));
+			assertEquals("id-" + i, table.getId(i));
+		}
+		assertEquals(-1, table.get("id-" + amount));
+	}
+
+	public void testConcurrentInternAndGet() throws InterruptedException {
+		final IdTable table = new IdTable(1);
+		final int amount = 200000;
+		// the highest handle that has been fully interned
+		final AtomicInteger interned = new AtomicInteger(-1);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < amount; i++) {
+					table.intern("id-" + i);
+					interned.set(i);
+				}
+			}
+		});
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int r = 0; r < 4; r++) {
+			final int offset = r;
+			readers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					int i = offset;
+					while (interned.get() < amount - 1 && failure.get() == null) {
+						int known = interned.get();
+						if (known >= 0) {
+							int id = i % (known + 1);
+							// an id that has been interned must always be found with the correct handle
+							int handle = table.get("id-" + id);
+							if (handle != id) {
+								failure.set("Expected " + id + " but got " + handle);
+							}
+						}
+						// an id that is (possibly) being interned is either found with its own handle or not at all
+						int pending = known + 1;
+						int handle = table.get("id-" + pending);
+						if (handle != -1 && handle != pending) {
+							failure.set("Expected -1 or " + pending + " but got " + handle);
+						}
+						i += 7;
+					}
+				}
+			}));
+		}
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		writer.start();
+		writer.join();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertNull(failure.get(), failure.get());
+		assertEquals(amount, table.size());
+	}
+}
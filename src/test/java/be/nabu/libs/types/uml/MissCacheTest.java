@@ -0,0 +1,72 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import junit.framework.TestCase;
+
+public class MissCacheTest extends TestCase {
+
+	public void testAddAndContains() {
+		MissCache cache = new MissCache(10);
+		assertFalse(cache.contains("a"));
+		cache.add("a");
+		assertTrue(cache.contains("a"));
+		cache.remove("a");
+		assertFalse(cache.contains("a"));
+		cache.add("b");
+		cache.clear();
+		assertFalse(cache.contains("b"));
+	}
+
+	public void testBounded() {
+		MissCache cache = new MissCache(100);
+		for (int i = 0; i < 10000; i++) {
+			cache.add("miss-" + i);
+		}
+		assertTrue(cache.size() <= 100);
+	}
+
+	public void testHotMissesAreRetained() {
+		MissCache cache = new MissCache(100);
+		cache.add("hot");
+		for (int i = 0; i < 10000; i++) {
+			// the hot id is requested between every new miss
+			assertTrue("The hot miss was evicted after " + i + " additions", cache.contains("hot"));
+			cache.add("miss-" + i);
+		}
+	}
+
+	public void testDisabled() {
+		MissCache cache = new MissCache(10);
+		cache.add("a");
+		cache.setMaxSize(0);
+		assertFalse(cache.contains("a"));
+		cache.add("b");
+		assertFalse(cache.contains("b"));
+		assertEquals(0, cache.size());
+	}
+
+	public void testLoweringTheMaximumEvicts() {
+		MissCache cache = new MissCache(100);
+		for (int i = 0; i < 100; i++) {
+			cache.add("miss-" + i);
+		}
+		cache.setMaxSize(10);
+		assertTrue(cache.size() <= 10);
+	}
+}
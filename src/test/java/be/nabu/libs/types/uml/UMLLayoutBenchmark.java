@@ -0,0 +1,128 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * Compares filling and reading a flat row through the slots of a layout with name based access on a regular structure instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UMLLayoutBenchmark {
+
+	private static final int FIELDS = 12;
+
+	private DefinedStructure type;
+	private UMLLayout layout;
+	private String [] names;
+	// the values per slot, the name based path uses the same values per name
+	private Object [] values;
+	private ComplexContent structureInstance;
+	private UMLRow rowInstance;
+
+	@Setup
+	public void setup() {
+		UMLRegistry registry = new UMLRegistry("benchmark");
+		registry.setGenerateLayouts(true);
+		String [] attributes = new String[FIELDS];
+		for (int i = 0; i < FIELDS; i++) {
+			attributes[i] = attribute("field" + i, i % 2 == 0 ? STRING : INT, 0, 1);
+		}
+		registry.load(document(model("orders", definitions(), clazz("class-order", "Order", attributes))));
+		type = (DefinedStructure) registry.getTypeById("class-order");
+		layout = registry.getLayout(type);
+		names = new String[layout.size()];
+		values = new Object[layout.size()];
+		for (int i = 0; i < layout.size(); i++) {
+			names[i] = layout.getName(i);
+			if (names[i].equals("id")) {
+				values[i] = UUID.randomUUID();
+			}
+			else if (names[i].startsWith("field")) {
+				values[i] = Integer.parseInt(names[i].substring("field".length())) % 2 == 0 ? "value" + i : (Object) i;
+			}
+		}
+		// both instances start out filled so the read benchmarks do not measure empty lookups
+		structureInstance = type.newInstance();
+		rowInstance = layout.newInstance();
+		for (int i = 0; i < values.length; i++) {
+			structureInstance.set(names[i], values[i]);
+			rowInstance.set(i, values[i]);
+		}
+	}
+
+	@Benchmark
+	public void writeByName(Blackhole blackhole) {
+		for (int i = 0; i < names.length; i++) {
+			structureInstance.set(names[i], values[i]);
+		}
+		blackhole.consume(structureInstance);
+	}
+
+	@Benchmark
+	public void writeBySlot(Blackhole blackhole) {
+		for (int i = 0; i < values.length; i++) {
+			rowInstance.set(i, values[i]);
+		}
+		blackhole.consume(rowInstance);
+	}
+
+	@Benchmark
+	public void readByName(Blackhole blackhole) {
+		for (int i = 0; i < names.length; i++) {
+			blackhole.consume(structureInstance.get(names[i]));
+		}
+	}
+
+	@Benchmark
+	public void readBySlot(Blackhole blackhole) {
+		for (int i = 0; i < values.length; i++) {
+			blackhole.consume(rowInstance.get(i));
+		}
+	}
+
+	public static void main(String...args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(UMLLayoutBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import java.util.UUID;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+public class UMLLayoutTest extends TestCase {
+
+	private UMLRegistry registry;
+	private DefinedStructure customer, order;
+
+	@Override
+	protected void setUp() {
+		registry = new UMLRegistry("test");
+		registry.setGenerateLayouts(true);
+		registry.load(document(model("crm",
+			definitions(),
+			clazz("class-party", "Party"),
+			clazz("class-customer", "Customer", attribute("name", STRING, 0, 1)),
+			clazz("class-order", "Order", attribute("amount", INT, 0, 1))
+		)));
+		customer = (DefinedStructure) registry.getTypeById("class-customer");
+		order = (DefinedStructure) registry.getTypeById("class-order");
+	}
+
+	public void testSlotsAreAssignedAtLoad() {
+		UMLLayout layout = registry.getLayout(order);
+		assertEquals(2, layout.size());
+		assertEquals(0, layout.getIndex("id"));
+		assertEquals(1, layout.getIndex("amount"));
+		assertEquals(-1, layout.getIndex("unknown"));
+	}
+
+	public void testRowAccess() {
+		UMLLayout layout = registry.getLayout(order);
+		UMLRow row = layout.newInstance();
+		row.set(layout.getIndex("amount"), 5);
+		assertEquals(5, row.get("amount"));
+		// name based access converts like a regular instance
+		row.set("amount", "6");
+		assertEquals(6, row.get(layout.getIndex("amount")));
+		try {
+			row.get("unknown");
+			fail("Expected an exception for an unknown element");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testReadAndWrite() {
+		UMLLayout layout = registry.getLayout(order);
+		UUID id = UUID.randomUUID();
+		Object [] row = layout.newRow();
+		row[layout.getIndex("id")] = id;
+		row[layout.getIndex("amount")] = 5;
+		ComplexContent content = layout.write(row);
+		assertEquals(id, content.get("id"));
+		assertEquals(5, content.get("amount"));
+		Object [] read = layout.read(content);
+		assertEquals(id, read[layout.getIndex("id")]);
+		assertEquals(5, read[layout.getIndex("amount")]);
+	}
+
+	public void testNewElementsAreAppended() {
+		UMLLayout before = registry.getLayout(order);
+		UMLRow oldRow = before.newInstance();
+		oldRow.set(before.getIndex("amount"), 5);
+		// adds a customerId to the order
+		registry.load(document(model("relations", association("class-customer", 1, "class-order", -1))));
+		UMLLayout after = registry.getLayout(order);
+		assertNotSame(before, after);
+		assertEquals(before.getIndex("id"), after.getIndex("id"));
+		assertEquals(before.getIndex("amount"), after.getIndex("amount"));
+		assertEquals(before.size(), after.getIndex("customerId"));
+		// rows of the older layout can still be read and written by index
+		Object [] read = after.read(oldRow);
+		assertEquals(5, read[after.getIndex("amount")]);
+		assertNull(read[after.getIndex("customerId")]);
+		read[after.getIndex("amount")] = 6;
+		read[after.getIndex("customerId")] = UUID.randomUUID();
+		after.write(read, oldRow);
+		assertEquals(6, oldRow.get(before.getIndex("amount")));
+	}
+
+	public void testRemovedElementsBecomeTombstones() {
+		UMLLayout before = registry.getLayout(customer);
+		int idSlot = before.getIndex("id");
+		int nameSlot = before.getIndex("name");
+		// with extensions the customer inherits the id from the party and its own id is removed
+		registry.setUseExtensions(true);
+		registry.load(document(model("extensions", generalization("class-customer", "class-party"))));
+		UMLLayout after = registry.getLayout(customer);
+		assertEquals(-1, after.getIndex("id"));
+		assertTrue(after.isTombstone(idSlot));
+		assertEquals(nameSlot, after.getIndex("name"));
+		assertEquals(before.size(), after.size());
+	}
+
+	public void testLazyLayoutsAreRebuiltOnLoad() {
+		registry.setGenerateLayouts(false);
+		UMLLayout before = registry.getLayout(order);
+		registry.load(document(model("relations", association("class-customer", 1, "class-order", -1))));
+		assertTrue(registry.getLayout(order).getIndex("customerId") >= 0);
+		assertEquals(before.getIndex("amount"), registry.getLayout(order).getIndex("amount"));
+	}
+}
@@ -0,0 +1,191 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedTypeRegistry;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.api.TypeRegistry;
+
+/**
+ * Measures getTypeById for xmi ids, defined (dotted) ids and ids of other registries as the amount of namespaces grows.
+ * The default lookup of the interface is measured on the same types for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UMLLookupBenchmark {
+
+	private static final int CLASSES = 5;
+
+	@Param({ "1", "10", "100", "1000" })
+	private int namespaces;
+
+	private UMLRegistry registry;
+	private DefinedTypeRegistry defaultLookup;
+	private String [] xmiIds, definedIds, foreignIds;
+
+	@Setup
+	public void setup() {
+		registry = new UMLRegistry("benchmark");
+		String [] models = new String[namespaces];
+		xmiIds = new String[namespaces * CLASSES];
+		definedIds = new String[namespaces * CLASSES];
+		foreignIds = new String[namespaces * CLASSES];
+		for (int i = 0; i < namespaces; i++) {
+			String [] classes = new String[CLASSES + (i == 0 ? 1 : 0)];
+			// the first model also contains the definitions
+			if (i == 0) {
+				classes[CLASSES] = definitions();
+			}
+			for (int j = 0; j < CLASSES; j++) {
+				int index = i * CLASSES + j;
+				xmiIds[index] = "class-" + i + "-" + j;
+				definedIds[index] = "benchmark.ns" + i + ".Class" + j;
+				foreignIds[index] = "other.ns" + i + ".Class" + j;
+				classes[j] = clazz(xmiIds[index], "Class" + j, attribute("name", STRING, 0, 1));
+			}
+			models[i] = model("ns" + i, classes);
+		}
+		registry.load(document(models));
+		for (String id : definedIds) {
+			if (registry.getTypeById(id) == null) {
+				throw new IllegalStateException("Could not resolve: " + id);
+			}
+		}
+		defaultLookup = new DefaultLookup(registry);
+	}
+
+	@Benchmark
+	public void xmiIds(Blackhole blackhole) {
+		for (String id : xmiIds) {
+			blackhole.consume(registry.getTypeById(id));
+		}
+	}
+
+	@Benchmark
+	public void definedIds(Blackhole blackhole) {
+		for (String id : definedIds) {
+			blackhole.consume(registry.getTypeById(id));
+		}
+	}
+
+	@Benchmark
+	public void foreignIds(Blackhole blackhole) {
+		for (String id : foreignIds) {
+			blackhole.consume(registry.getTypeById(id));
+		}
+	}
+
+	@Benchmark
+	public void definedIdsDefault(Blackhole blackhole) {
+		for (String id : definedIds) {
+			blackhole.consume(defaultLookup.getTypeById(id));
+		}
+	}
+
+	@Benchmark
+	public void foreignIdsDefault(Blackhole blackhole) {
+		for (String id : foreignIds) {
+			blackhole.consume(defaultLookup.getTypeById(id));
+		}
+	}
+
+	/**
+	 * Exposes the same types but uses the default getTypeById of the interface
+	 */
+	private static class DefaultLookup implements DefinedTypeRegistry {
+		private TypeRegistry registry;
+		private String id;
+
+		private DefaultLookup(UMLRegistry registry) {
+			this.registry = registry;
+			this.id = registry.getId();
+		}
+
+		@Override
+		public SimpleType<?> getSimpleType(String namespace, String name) {
+			return registry.getSimpleType(namespace, name);
+		}
+
+		@Override
+		public ComplexType getComplexType(String namespace, String name) {
+			return registry.getComplexType(namespace, name);
+		}
+
+		@Override
+		public Element<?> getElement(String namespace, String name) {
+			return registry.getElement(namespace, name);
+		}
+
+		@Override
+		public Set<String> getNamespaces() {
+			return registry.getNamespaces();
+		}
+
+		@Override
+		public List<SimpleType<?>> getSimpleTypes(String namespace) {
+			return registry.getSimpleTypes(namespace);
+		}
+
+		@Override
+		public List<ComplexType> getComplexTypes(String namespace) {
+			return registry.getComplexTypes(namespace);
+		}
+
+		@Override
+		public List<Element<?>> getElements(String namespace) {
+			return registry.getElements(namespace);
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+	}
+
+	public static void main(String...args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(UMLLookupBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,144 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+import org.w3c.dom.Document;
+
+import be.nabu.utils.xml.XMLUtils;
+
+/**
+ * Generates small argouml style XMI documents for the benchmarks.
+ * The first model defines the tags and data types, they are referenced by id from all the classes.
+ */
+public class UMLModels {
+
+	public static final String STRING = "dt-string", INT = "dt-int";
+	public static final String PATTERN = "tag-pattern", MIN_LENGTH = "tag-minLength", MAX_LENGTH = "tag-maxLength", MIN_INCLUSIVE = "tag-minInclusive", MAX_INCLUSIVE = "tag-maxInclusive", MIN_EXCLUSIVE = "tag-minExclusive", MAX_EXCLUSIVE = "tag-maxExclusive";
+
+	public static String definitions() {
+		return tagDefinition(PATTERN, "pattern")
+			+ tagDefinition(MIN_LENGTH, "minLength")
+			+ tagDefinition(MAX_LENGTH, "maxLength")
+			+ tagDefinition(MIN_INCLUSIVE, "minInclusive")
+			+ tagDefinition(MAX_INCLUSIVE, "maxInclusive")
+			+ tagDefinition(MIN_EXCLUSIVE, "minExclusive")
+			+ tagDefinition(MAX_EXCLUSIVE, "maxExclusive")
+			+ "<UML:DataType xmi.id='" + STRING + "' name='string'/>"
+			+ "<UML:DataType xmi.id='" + INT + "' name='int'/>";
+	}
+
+	public static String model(String name, String...content) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("<UML:Model xmi.id='model-").append(name).append("' name='").append(name).append("'><UML:Namespace.ownedElement>");
+		for (String part : content) {
+			builder.append(part);
+		}
+		return builder.append("</UML:Namespace.ownedElement></UML:Model>").toString();
+	}
+
+	public static String clazz(String id, String name, String...attributes) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("<UML:Class xmi.id='").append(id).append("' name='").append(name).append("'><UML:Classifier.feature>");
+		for (String attribute : attributes) {
+			builder.append(attribute);
+		}
+		return builder.append("</UML:Classifier.feature></UML:Class>").toString();
+	}
+
+	public static String attribute(String name, String type, int lower, int upper, String...taggedValues) {
+		return attribute(name, "DataType", type, lower, upper, taggedValues);
+	}
+
+	/**
+	 * An attribute that references another class instead of a data type
+	 */
+	public static String classAttribute(String name, String classId, int lower, int upper) {
+		return attribute(name, "Class", classId, lower, upper);
+	}
+
+	private static String attribute(String name, String kind, String type, int lower, int upper, String...taggedValues) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("<UML:Attribute xmi.id='attribute-").append(name).append("' name='").append(name).append("'>")
+			.append("<UML:StructuralFeature.multiplicity><UML:Multiplicity><UML:Multiplicity.range>")
+			.append("<UML:MultiplicityRange lower='").append(lower).append("' upper='").append(upper).append("'/>")
+			.append("</UML:Multiplicity.range></UML:Multiplicity></UML:StructuralFeature.multiplicity>")
+			.append("<UML:ModelElement.taggedValue>");
+		for (String taggedValue : taggedValues) {
+			builder.append(taggedValue);
+		}
+		return builder.append("</UML:ModelElement.taggedValue>")
+			.append("<UML:StructuralFeature.type><UML:").append(kind).append(" xmi.idref='").append(type).append("'/></UML:StructuralFeature.type>")
+			.append("</UML:Attribute>").toString();
+	}
+
+	/**
+	 * The parent becomes the super type of the child (when extensions are used)
+	 */
+	public static String generalization(String childId, String parentId) {
+		return "<UML:Generalization xmi.id='generalization-" + childId + "-" + parentId + "'>"
+			+ "<UML:Generalization.child><UML:Class xmi.idref='" + childId + "'/></UML:Generalization.child>"
+			+ "<UML:Generalization.parent><UML:Class xmi.idref='" + parentId + "'/></UML:Generalization.parent>"
+			+ "</UML:Generalization>";
+	}
+
+	/**
+	 * An unnamed association, an upper bound of -1 means many
+	 */
+	public static String association(String fromId, int fromUpper, String toId, int toUpper) {
+		return "<UML:Association xmi.id='association-" + fromId + "-" + toId + "' name=''><UML:Association.connection>"
+			+ associationEnd(fromId, fromUpper)
+			+ associationEnd(toId, toUpper)
+			+ "</UML:Association.connection></UML:Association>";
+	}
+
+	private static String associationEnd(String classId, int upper) {
+		return "<UML:AssociationEnd xmi.id='end-" + classId + "-" + upper + "'>"
+			+ "<UML:AssociationEnd.multiplicity><UML:Multiplicity><UML:Multiplicity.range>"
+			+ "<UML:MultiplicityRange lower='1' upper='" + upper + "'/>"
+			+ "</UML:Multiplicity.range></UML:Multiplicity></UML:AssociationEnd.multiplicity>"
+			+ "<UML:AssociationEnd.participant><UML:Class xmi.idref='" + classId + "'/></UML:AssociationEnd.participant>"
+			+ "</UML:AssociationEnd>";
+	}
+
+	public static String taggedValue(String tag, String value) {
+		return "<UML:TaggedValue><UML:TaggedValue.dataValue>" + value + "</UML:TaggedValue.dataValue>"
+			+ "<UML:TaggedValue.type><UML:TagDefinition xmi.idref='" + tag + "'/></UML:TaggedValue.type></UML:TaggedValue>";
+	}
+
+	public static Document document(String...models) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("<XMI xmi.version='1.2' xmlns:UML='org.omg.xmi.namespace.UML'><XMI.content>");
+		for (String model : models) {
+			builder.append(model);
+		}
+		builder.append("</XMI.content></XMI>");
+		try {
+			return XMLUtils.toDocument(new ByteArrayInputStream(builder.toString().getBytes(Charset.forName("UTF-8"))), true);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String tagDefinition(String id, String name) {
+		return "<UML:TagDefinition xmi.id='" + id + "' name='" + name + "'/>";
+	}
+}
@@ -0,0 +1,194 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class UMLRegistryPoolTest extends TestCase {
+
+	/**
+	 * Builds an empty registry per tenant, optionally waiting for a latch so builds can be held open
+	 */
+	private static class CountingFactory implements UMLRegistryFactory {
+		private AtomicInteger builds = new AtomicInteger();
+		private volatile CountDownLatch started, release;
+
+		@Override
+		public UMLRegistry newRegistry(String tenant, List<UMLRegistry> imports) throws IOException {
+			builds.incrementAndGet();
+			if (started != null) {
+				started.countDown();
+			}
+			if (release != null) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			UMLRegistry registry = new UMLRegistry(tenant);
+			registry.setImports(imports);
+			return registry;
+		}
+	}
+
+	public void testHitsAndMisses() throws IOException {
+		CountingFactory factory = new CountingFactory();
+		UMLRegistryPool pool = new UMLRegistryPool(factory, null);
+		UMLRegistry registry = pool.getRegistry("a");
+		assertSame(registry, pool.getRegistry("a"));
+		assertEquals(1, factory.builds.get());
+		assertEquals(1, pool.getMisses());
+		assertEquals(1, pool.getHits());
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() throws IOException {
+		CountingFactory factory = new CountingFactory();
+		UMLRegistryPool pool = new UMLRegistryPool(factory, null);
+		pool.setMaxTenants(2);
+		UMLRegistry a = pool.getRegistry("a");
+		pool.getRegistry("b");
+		// touch a so b becomes the least recently used
+		pool.getRegistry("a");
+		pool.getRegistry("c");
+		assertEquals(2, pool.getSize());
+		assertEquals(1, pool.getEvictions());
+		assertSame(a, pool.getRegistry("a"));
+		int builds = factory.builds.get();
+		pool.getRegistry("b");
+		assertEquals(builds + 1, factory.builds.get());
+	}
+
+	public void testIdleRegistriesAreSweptOnAccess() throws Exception {
+		CountingFactory factory = new CountingFactory();
+		UMLRegistryPool pool = new UMLRegistryPool(factory, null);
+		pool.setMaxIdleTime(50);
+		pool.getRegistry("a");
+		Thread.sleep(150);
+		pool.getRegistry("b");
+		assertEquals(1, pool.getSize());
+		assertEquals(1, pool.getEvictions());
+	}
+
+	public void testConcurrentRequestsShareOneBuild() throws Exception {
+		final CountingFactory factory = new CountingFactory();
+		factory.started = new CountDownLatch(1);
+		factory.release = new CountDownLatch(1);
+		final UMLRegistryPool pool = new UMLRegistryPool(factory, null);
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<UMLRegistry>> results = new ArrayList<Future<UMLRegistry>>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(new Callable<UMLRegistry>() {
+					@Override
+					public UMLRegistry call() throws Exception {
+						return pool.getRegistry("a");
+					}
+				}));
+			}
+			assertTrue(factory.started.await(10, TimeUnit.SECONDS));
+			factory.release.countDown();
+			UMLRegistry first = results.get(0).get();
+			for (Future<UMLRegistry> result : results) {
+				assertSame(first, result.get());
+			}
+			assertEquals(1, factory.builds.get());
+			assertEquals(1, pool.getMisses());
+			assertEquals(threads - 1, pool.getHits() + pool.getJoins());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testInvalidateDuringBuild() throws Exception {
+		final CountingFactory factory = new CountingFactory();
+		factory.started = new CountDownLatch(1);
+		factory.release = new CountDownLatch(1);
+		final UMLRegistryPool pool = new UMLRegistryPool(factory, null);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<UMLRegistry> outdated = executor.submit(new Callable<UMLRegistry>() {
+				@Override
+				public UMLRegistry call() throws Exception {
+					return pool.getRegistry("a");
+				}
+			});
+			assertTrue(factory.started.await(10, TimeUnit.SECONDS));
+			pool.invalidate("a");
+			factory.release.countDown();
+			assertNotNull(outdated.get());
+			// the outdated build is not retained
+			assertEquals(0, pool.getSize());
+			factory.started = null;
+			factory.release = null;
+			assertNotSame(outdated.get(), pool.getRegistry("a"));
+			assertEquals(2, factory.builds.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testSharedRegistriesAreSealed() throws IOException {
+		UMLRegistry core = new UMLRegistry("core");
+		core.load(document(model("core", definitions(), clazz("class-party", "Party"))));
+		UMLRegistryPool pool = new UMLRegistryPool(new UMLRegistryFactory() {
+			@Override
+			public UMLRegistry newRegistry(String tenant, List<UMLRegistry> imports) throws IOException {
+				UMLRegistry registry = new UMLRegistry(tenant);
+				registry.setImports(imports);
+				// the party is the "many" side so the foreign key would be added to the shared type
+				registry.load(document(model("tenant", clazz("class-contract", "Contract"), association("class-contract", 1, "class-party", -1))));
+				return registry;
+			}
+		}, Arrays.asList(core));
+		assertTrue(core.isSealed());
+		try {
+			core.load(document(model("other", clazz("class-other", "Other"))));
+			fail("A sealed registry should not accept loads");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			pool.getRegistry("a");
+			fail("A tenant that modifies a shared type should not build");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		assertNull(core.getComplexType("core.core", "Party").get("contractId"));
+	}
+}
@@ -0,0 +1,69 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.Type;
+
+public class UMLRegistryTest extends TestCase {
+
+	private UMLRegistry registry;
+
+	@Override
+	protected void setUp() {
+		registry = new UMLRegistry("test");
+		registry.load(document(model("crm",
+			definitions(),
+			clazz("class-customer", "Customer", attribute("name", STRING, 0, 1))
+		)));
+	}
+
+	public void testXmiAndDefinedIds() {
+		Type customer = registry.getTypeById("class-customer");
+		assertNotNull(customer);
+		assertSame(customer, registry.getTypeById("test.crm.Customer"));
+		// repeated lookups are served from the index
+		assertSame(customer, registry.getTypeById("test.crm.Customer"));
+	}
+
+	public void testUnknownIds() {
+		assertNull(registry.getTypeById("test.crm.Unknown"));
+		// the second lookup is served from the miss cache
+		assertNull(registry.getTypeById("test.crm.Unknown"));
+		assertNull(registry.getTypeById(null));
+	}
+
+	public void testMissesAreInvalidatedByLoad() {
+		assertNull(registry.getTypeById("test.sales.Order"));
+		registry.load(document(model("sales",
+			definitions(),
+			clazz("class-order", "Order", attribute("amount", INT, 0, 1))
+		)));
+		assertNotNull(registry.getTypeById("test.sales.Order"));
+		assertSame(registry.getTypeById("class-order"), registry.getTypeById("test.sales.Order"));
+	}
+
+	public void testDisabledMissCache() {
+		registry.setMaxMisses(0);
+		assertNull(registry.getTypeById("test.crm.Unknown"));
+		assertNull(registry.getTypeById("test.crm.Unknown"));
+		assertNotNull(registry.getTypeById("test.crm.Customer"));
+	}
+}
@@ -0,0 +1,127 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.structure.DefinedStructure;
+import be.nabu.libs.validator.api.Validator;
+
+/**
+ * Compares the compiled validator with the generic validator of the structure.
+ * The setup verifies that both come to the same conclusion for every record before anything is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UMLValidatorBenchmark {
+
+	private UMLValidator compiled;
+	@SuppressWarnings("rawtypes")
+	private Validator generic;
+	private ComplexContent [] records;
+
+	@Setup
+	public void setup() {
+		UMLRegistry registry = new UMLRegistry("benchmark");
+		registry.setAddDatabaseFields(false);
+		registry.load(document(model("crm",
+			definitions(),
+			clazz("class-customer", "Customer",
+				attribute("code", STRING, 1, 1, taggedValue(PATTERN, "[A-Z]{3}-[0-9]{6}")),
+				attribute("name", STRING, 1, 1, taggedValue(MIN_LENGTH, "2"), taggedValue(MAX_LENGTH, "40")),
+				attribute("email", STRING, 0, 1, taggedValue(PATTERN, "[^@]+@[^@]+\\.[a-z]+")),
+				attribute("age", INT, 0, 1, taggedValue(MIN_INCLUSIVE, "0"), taggedValue(MAX_INCLUSIVE, "150"))
+			)
+		)));
+		DefinedStructure customer = (DefinedStructure) registry.getTypeById("class-customer");
+		compiled = registry.getValidator(customer);
+		generic = customer.createValidator();
+		List<ComplexContent> records = new ArrayList<ComplexContent>();
+		records.add(customer(customer, "ABC-123456", "Jane Doe", "jane@example.com", 42));
+		records.add(customer(customer, "XYZ-000001", "John", null, null));
+		records.add(customer(customer, "abc-123456", "Jane Doe", "jane@example.com", 42));
+		records.add(customer(customer, "ABC-123456", "J", "jane@example.com", 42));
+		records.add(customer(customer, "ABC-123456", "Jane Doe", "not an email", 42));
+		records.add(customer(customer, "ABC-123456", "Jane Doe", "jane@example.com", 151));
+		records.add(customer(customer, null, "Jane Doe", null, null));
+		this.records = records.toArray(new ComplexContent[records.size()]);
+		for (ComplexContent record : this.records) {
+			boolean compiledResult = compiled.isValid(record);
+			boolean genericResult = isValidGeneric(record);
+			if (compiledResult != genericResult) {
+				throw new IllegalStateException("The compiled validator (" + compiledResult + ") disagrees with the generic validator (" + genericResult + ") for: " + record);
+			}
+		}
+	}
+
+	private static ComplexContent customer(DefinedStructure type, String code, String name, String email, Integer age) {
+		ComplexContent content = type.newInstance();
+		content.set("code", code);
+		content.set("name", name);
+		content.set("email", email);
+		content.set("age", age);
+		return content;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean isValidGeneric(ComplexContent record) {
+		return generic.validate(record).isEmpty();
+	}
+
+	@Benchmark
+	public void compiled(Blackhole blackhole) {
+		for (ComplexContent record : records) {
+			blackhole.consume(compiled.isValid(record));
+		}
+	}
+
+	@Benchmark
+	public void generic(Blackhole blackhole) {
+		for (ComplexContent record : records) {
+			blackhole.consume(isValidGeneric(record));
+		}
+	}
+
+	public static void main(String...args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(UMLValidatorBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,141 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.uml;
+
+import static be.nabu.libs.types.uml.UMLModels.*;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+public class UMLValidatorTest extends TestCase {
+
+	private UMLRegistry registry;
+	private DefinedStructure customer, order;
+
+	@Override
+	protected void setUp() {
+		registry = new UMLRegistry("test");
+		registry.setAddDatabaseFields(false);
+		registry.setGenerateFlatDocuments(false);
+		registry.load(document(model("crm",
+			definitions(),
+			clazz("class-customer", "Customer",
+				attribute("code", STRING, 1, 1, taggedValue(PATTERN, "[A-Z]{3}")),
+				attribute("name", STRING, 0, 1, taggedValue(MIN_LENGTH, "2"), taggedValue(MAX_LENGTH, "5")),
+				attribute("age", INT, 0, 1, taggedValue(MIN_INCLUSIVE, "0"), taggedValue(MAX_INCLUSIVE, "150")),
+				attribute("score", INT, 0, 1, taggedValue(MIN_EXCLUSIVE, "0"), taggedValue(MAX_EXCLUSIVE, "10")),
+				attribute("tags", STRING, 2, -1)
+			),
+			clazz("class-order", "Order",
+				classAttribute("customer", "class-customer", 1, 1)
+			)
+		)));
+		customer = (DefinedStructure) registry.getTypeById("class-customer");
+		order = (DefinedStructure) registry.getTypeById("class-order");
+	}
+
+	private ComplexContent newCustomer() {
+		ComplexContent content = customer.newInstance();
+		content.set("code", "ABC");
+		content.set("tags", Arrays.asList("a", "b"));
+		return content;
+	}
+
+	private boolean isValid(ComplexContent content) {
+		return registry.getValidator(customer).isValid(content);
+	}
+
+	public void testValid() {
+		assertTrue(isValid(newCustomer()));
+	}
+
+	public void testPattern() {
+		ComplexContent content = newCustomer();
+		content.set("code", "abc");
+		assertFalse(isValid(content));
+		assertEquals("code", registry.getValidator(customer).getName(registry.getValidator(customer).getFirstViolation(content)));
+	}
+
+	public void testLength() {
+		ComplexContent content = newCustomer();
+		content.set("name", "a");
+		assertFalse(isValid(content));
+		content.set("name", "abcdef");
+		assertFalse(isValid(content));
+		content.set("name", "abc");
+		assertTrue(isValid(content));
+	}
+
+	public void testInclusiveBounds() {
+		ComplexContent content = newCustomer();
+		content.set("age", 0);
+		assertTrue(isValid(content));
+		content.set("age", 150);
+		assertTrue(isValid(content));
+		content.set("age", -1);
+		assertFalse(isValid(content));
+		content.set("age", 151);
+		assertFalse(isValid(content));
+	}
+
+	public void testExclusiveBounds() {
+		ComplexContent content = newCustomer();
+		content.set("score", 0);
+		assertFalse(isValid(content));
+		content.set("score", 10);
+		assertFalse(isValid(content));
+		content.set("score", 5);
+		assertTrue(isValid(content));
+	}
+
+	public void testOccurrences() {
+		ComplexContent content = newCustomer();
+		content.set("code", null);
+		assertFalse(isValid(content));
+		content = newCustomer();
+		content.set("tags", Arrays.asList("a"));
+		assertFalse(isValid(content));
+		content.set("tags", Arrays.asList("a", "b", "c"));
+		assertTrue(isValid(content));
+	}
+
+	public void testScalarCountsAsOneOccurrence() {
+		ComplexContent content = newCustomer();
+		content.set("tags", "a");
+		assertFalse(isValid(content));
+	}
+
+	public void testNestedComplexContent() {
+		ComplexContent content = order.newInstance();
+		ComplexContent nested = newCustomer();
+		content.set("customer", nested);
+		assertTrue(registry.getValidator(order).isValid(content));
+		nested.set("code", "abc");
+		assertFalse(registry.getValidator(order).isValid(content));
+	}
+
+	public void testValidatorIsRebuiltAfterLoad() {
+		UMLValidator validator = registry.getValidator(customer);
+		assertSame(validator, registry.getValidator(customer));
+		registry.load(document(model("other", clazz("class-other", "Other"))));
+		assertNotSame(validator, registry.getValidator(customer));
+	}
+}